@@ -13,13 +13,18 @@ const ChatInterface = () => {
     const location = useLocation();
     const { user } = useAuth();
     const { theme } = useTheme();
-    const { triggerRefresh } = useChat();
+    const { triggerRefresh, lastEvent } = useChat();
     
     const [messages, setMessages] = useState([]);
     const [input, setInput] = useState('');
     const [loading, setLoading] = useState(false);
     const messagesEndRef = useRef(null);
     const textareaRef = useRef(null);
+    const speculatingRef = useRef(false); // A speculation was posted for the current draft
+    // Echoes of this tab's own requests: user texts not yet seen as events,
+    // and how many assistant replies to them are still to arrive
+    const ownTextsRef = useRef([]);
+    const ownRepliesRef = useRef(0);
     const [currentSlideId, setCurrentSlideId] = useState(null);
 
     // Simulated Loading State
@@ -55,6 +60,69 @@ const ChatInterface = () => {
         loadChatSession();
     }, [sessionId, user]);
 
+    // Speculative pre-analysis: let the server start the Architect on the draft
+    // while the user is still typing. Submitting the same text reuses it.
+    const cancelSpeculation = (keepalive = false) => {
+        if (!speculatingRef.current) return;
+        speculatingRef.current = false;
+        const token = localStorage.getItem('token');
+        fetch('http://localhost:8080/api/analyze/speculate', {
+            method: 'DELETE',
+            headers: { 'Authorization': `Bearer ${token}` },
+            keepalive // Survives the page being closed
+        }).catch(() => {});
+    };
+
+    useEffect(() => {
+        const draft = input.trim();
+        if (loading) return;
+        if (draft.length < 12) {
+            cancelSpeculation(); // Draft cleared or shortened: stop paying for it
+            return;
+        }
+
+        const controller = new AbortController();
+        const timer = setTimeout(() => {
+            speculatingRef.current = true;
+            const token = localStorage.getItem('token');
+            fetch('http://localhost:8080/api/analyze/speculate', {
+                method: 'POST',
+                headers: { 'Content-Type': 'application/json', 'Authorization': `Bearer ${token}` },
+                body: JSON.stringify({ rawText: draft, sessionId: sessionId }),
+                signal: controller.signal
+            }).catch(() => {}); // Best effort only
+        }, 800);
+
+        return () => {
+            clearTimeout(timer);
+            controller.abort();
+        };
+    }, [input, loading]);
+
+    // Leaving the chat abandons the draft
+    useEffect(() => () => cancelSpeculation(true), []);
+
+    // Another tab (or replica) changed this session: pick up its messages.
+    // Our own request's response already updates the view, and with the mongo
+    // broker its events may arrive after that, so they are skipped.
+    useEffect(() => {
+        if (!lastEvent || lastEvent.sessionId !== sessionId) return;
+        if (lastEvent.type !== 'MESSAGE_APPENDED' && lastEvent.type !== 'SLIDE_READY') return;
+
+        if (lastEvent.type === 'MESSAGE_APPENDED' && lastEvent.role === 'user') {
+            const own = ownTextsRef.current.indexOf(lastEvent.content);
+            if (own >= 0) {
+                ownTextsRef.current.splice(own, 1);
+                ownRepliesRef.current += 1;
+                return;
+            }
+        } else if (ownRepliesRef.current > 0) {
+            ownRepliesRef.current -= 1;
+            return;
+        }
+        if (!loading) loadChatSession();
+    }, [lastEvent]);
+
     useEffect(() => {
         scrollToBottom();
     }, [messages, loading]); // Added loading to scroll to bottom when loading starts
@@ -140,6 +208,7 @@ const ChatInterface = () => {
 
     const handleSend = async () => {
         if (!input.trim()) return;
+        speculatingRef.current = false; // Submit consumes the speculation, do not cancel it on remount
 
         // Lazy Session Creation
         let activeSessionId = sessionId;
@@ -189,6 +258,7 @@ const ChatInterface = () => {
     
     // Helper for generation (called by handleSend or by effect)
     const performGeneration = async (sid, text) => {
+        ownTextsRef.current.push(text);
         try {
             const token = localStorage.getItem('token');
             const genRes = await fetch('http://localhost:8080/api/generate', {
@@ -1,18 +1,58 @@
-import React, { createContext, useContext, useState, useCallback } from 'react';
+import React, { createContext, useContext, useState, useCallback, useEffect, useRef } from 'react';
+import { useAuth } from './AuthContext';
 
 const ChatContext = createContext();
 
 export const useChat = () => useContext(ChatContext);
 
 export const ChatProvider = ({ children }) => {
+  const { token } = useAuth();
   const [refreshTrigger, setRefreshTrigger] = useState(0);
+  // Latest server push event ({ type, sessionId, title, role, content, slideId })
+  const [lastEvent, setLastEvent] = useState(null);
+  const socketRef = useRef(null);
 
   const triggerRefresh = useCallback(() => {
     setRefreshTrigger(prev => prev + 1);
   }, []);
 
+  // Live session updates pushed from the server to every open tab
+  useEffect(() => {
+    if (!token) return;
+
+    let closed = false;
+    let retryTimer;
+
+    const connect = () => {
+      const ws = new WebSocket(`ws://localhost:8080/ws/chats?token=${encodeURIComponent(token)}`);
+      socketRef.current = ws;
+
+      ws.onmessage = (msg) => {
+        try {
+          const event = JSON.parse(msg.data);
+          setLastEvent(event);
+          if (event.type === 'TITLE_UPDATED') triggerRefresh();
+        } catch (e) {
+          console.error("Bad chat event", e);
+        }
+      };
+
+      ws.onclose = () => {
+        if (!closed) retryTimer = setTimeout(connect, 3000);
+      };
+    };
+
+    connect();
+
+    return () => {
+      closed = true;
+      clearTimeout(retryTimer);
+      socketRef.current?.close();
+    };
+  }, [token, triggerRefresh]);
+
   return (
-    <ChatContext.Provider value={{ refreshTrigger, triggerRefresh }}>
+    <ChatContext.Provider value={{ refreshTrigger, triggerRefresh, lastEvent }}>
       {children}
     </ChatContext.Provider>
   );
@@ -3,6 +3,7 @@ package com.projectc.client;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.HeaderParam;
+import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import java.util.List;
 
@@ -15,6 +16,13 @@ public interface AnthropicClient {
             @HeaderParam("anthropic-version") String version,
             AnthropicRequest request);
 
+    // Non-blocking variant; cancelling the subscription aborts the HTTP call
+    @POST
+    @Path("/v1/messages")
+    Uni<AnthropicResponse> chatAsync(@HeaderParam("x-api-key") String apiKey,
+            @HeaderParam("anthropic-version") String version,
+            AnthropicRequest request);
+
     // Records for Request/Response
     record AnthropicRequest(String model, int max_tokens, List<Message> messages, String system) {
     }
@@ -22,8 +30,8 @@ public interface AnthropicClient {
     record Message(String role, String content) {
     }
 
-    // Response
-    record AnthropicResponse(List<Content> content, Usage usage) {
+    // Response; stop_reason is "end_turn", "max_tokens", "stop_sequence", ...
+    record AnthropicResponse(List<Content> content, Usage usage, String stop_reason) {
     }
 
     record Content(String type, String text) {
@@ -0,0 +1,34 @@
+package com.projectc.model;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntity;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import java.time.LocalDateTime;
+
+// Short-lived relay record; every server replica tails this collection via a change stream.
+@MongoEntity(collection = "chat_events")
+public class ChatEvent extends PanacheMongoEntity {
+
+    public String type; // "MESSAGE_APPENDED", "TITLE_UPDATED", "SLIDE_READY"
+    public String userId;
+    public String sessionId;
+    public String title;
+    public String role;
+    public String content;
+    public String slideId;
+    public LocalDateTime createdAt; // TTL indexed
+
+    public ChatEvent() {
+    }
+
+    public ChatEvent(String type, String userId, String sessionId, String title, String role, String content,
+            String slideId) {
+        this.type = type;
+        this.userId = userId;
+        this.sessionId = sessionId;
+        this.title = title;
+        this.role = role;
+        this.content = content;
+        this.slideId = slideId;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -1,8 +1,10 @@
 package com.projectc.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.quarkus.mongodb.panache.PanacheMongoEntity;
 import io.quarkus.mongodb.panache.common.MongoEntity;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @MongoEntity(collection = "history")
 public class GenerationHistory extends PanacheMongoEntity {
@@ -12,6 +14,10 @@ public class GenerationHistory extends PanacheMongoEntity {
     public String jsonOutput;
     public LocalDateTime timestamp;
     public String slideHeader;
+    @JsonIgnore
+    public List<Integer> minHash; // Similarity signature, see SlideSimilarityIndex
+    @JsonIgnore
+    public String layoutNote; // Short copy of the response's layout text, so the index never reads jsonOutput
 
     public GenerationHistory() {
     }
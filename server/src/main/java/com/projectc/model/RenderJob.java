@@ -0,0 +1,39 @@
+package com.projectc.model;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntity;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import java.time.Instant;
+
+@MongoEntity(collection = "render_jobs")
+public class RenderJob extends PanacheMongoEntity {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    public String status;
+    public String strategyJson; // Serialized SlideStrategy
+    public String rawText;
+    public String sessionId;
+    public int attempts;
+    public String leaseOwner; // Node currently holding the job
+    public Instant leaseExpiresAt; // Set from the database clock ($$NOW), never a node's
+    public String resultJson; // Serialized SlideResponse
+    public String historyId;
+    public String error;
+    public Instant createdAt;
+    public Instant updatedAt;
+
+    public RenderJob() {
+    }
+
+    public RenderJob(String strategyJson, String rawText, String sessionId) {
+        this.status = QUEUED;
+        this.strategyJson = strategyJson;
+        this.rawText = rawText;
+        this.sessionId = sessionId;
+        this.createdAt = Instant.now();
+        this.updatedAt = createdAt;
+    }
+}
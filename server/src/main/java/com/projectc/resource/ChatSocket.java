@@ -0,0 +1,71 @@
+package com.projectc.resource;
+
+import com.projectc.service.ChatEventService;
+import io.quarkus.websockets.next.OnClose;
+import io.quarkus.websockets.next.OnOpen;
+import io.quarkus.websockets.next.WebSocket;
+import io.quarkus.websockets.next.WebSocketConnection;
+import io.smallrye.jwt.auth.principal.JWTParser;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Browsers cannot set headers on a WebSocket handshake, so the JWT travels as ?token=...
+@WebSocket(path = "/ws/chats")
+public class ChatSocket {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChatSocket.class);
+
+    @Inject
+    ChatEventService chatEvents;
+
+    @Inject
+    JWTParser jwtParser;
+
+    // connectionId -> userId
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    @OnOpen
+    public void onOpen(WebSocketConnection connection) {
+        String userId = authenticate(connection.handshakeRequest().query());
+        if (userId == null) {
+            connection.closeAndAwait();
+            return;
+        }
+        owners.put(connection.id(), userId);
+        chatEvents.register(userId, connection);
+    }
+
+    @OnClose
+    public void onClose(WebSocketConnection connection) {
+        String userId = owners.remove(connection.id());
+        if (userId != null) {
+            chatEvents.unregister(userId, connection);
+        }
+    }
+
+    private String authenticate(String query) {
+        if (query == null) {
+            return null;
+        }
+        for (String param : query.split("&")) {
+            if (param.startsWith("token=")) {
+                try {
+                    String token = URLDecoder.decode(param.substring(6), StandardCharsets.UTF_8);
+                    JsonWebToken jwt = jwtParser.parse(token);
+                    return jwt.getName(); // Chat sessions are keyed by email
+                } catch (Exception e) {
+                    LOG.warn("Rejected chat socket: {}", e.getMessage());
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
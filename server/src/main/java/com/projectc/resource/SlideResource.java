@@ -3,7 +3,12 @@ package com.projectc.resource;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.projectc.model.GenerationHistory;
+import com.projectc.model.RenderJob;
+import com.projectc.service.HtmlCompactor;
+import com.projectc.service.RenderJobService;
 import com.projectc.service.SlideService;
+import com.projectc.service.SlideSimilarityIndex;
+import com.projectc.service.SpeculationService;
 import com.projectc.service.SlideService.SlideResponse;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -11,18 +16,43 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.jwt.JsonWebToken;
 
 @Path("/api")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class SlideResource {
 
+    private static final int MAX_SIMILAR_LIMIT = 20;
+
     @Inject
     SlideService slideService;
 
     @Inject
     com.projectc.service.ChatService chatService;
 
+    @Inject
+    RenderJobService renderJobService;
+
+    @Inject
+    SlideSimilarityIndex similarityIndex;
+
+    @Inject
+    HtmlCompactor htmlCompactor;
+
+    @ConfigProperty(name = "similarity.search.min-score", defaultValue = "0.35")
+    double searchMinScore;
+
+    @ConfigProperty(name = "similarity.duplicate-threshold", defaultValue = "0.85")
+    double duplicateThreshold;
+
+    @Inject
+    SpeculationService speculationService;
+
+    @Inject
+    JsonWebToken jwt;
+
     @Inject
     ObjectMapper objectMapper;
 
@@ -30,7 +60,8 @@ public class SlideResource {
     @Path("/analyze")
     public Response analyze(GenerateRequest request) {
         try {
-            SlideService.ArchitectResponse response = slideService.analyzeRequest(request.rawText());
+            SlideService.ArchitectResponse response = speculationService.take(currentUser(), request.rawText())
+                    .orElseGet(() -> slideService.analyzeRequest(request.rawText()));
 
             if ("CHAT".equals(response.intent()) && request.sessionId() != null) {
                 try {
@@ -54,33 +85,48 @@ public class SlideResource {
         }
     }
 
+    // Debounced partial input from the composer: start the Architect early so
+    // that submit can skip it. A newer call supersedes (and cancels) the last.
+    @POST
+    @Path("/analyze/speculate")
+    public Response speculate(GenerateRequest request) {
+        String user = currentUser();
+        if (user == null)
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        SpeculationService.Outcome outcome = speculationService.speculate(user, request.rawText());
+        if (outcome == SpeculationService.Outcome.BUDGET_EXCEEDED)
+            return Response.status(Response.Status.TOO_MANY_REQUESTS).entity(outcome).build();
+        return Response.accepted(outcome).build();
+    }
+
+    @DELETE
+    @Path("/analyze/speculate")
+    public Response cancelSpeculation() {
+        String user = currentUser();
+        if (user != null)
+            speculationService.cancel(user);
+        return Response.noContent().build();
+    }
+
     @POST
     @Path("/render")
-    public Response render(RenderRequest request) {
+    public Response render(RenderRequest request, @QueryParam("async") boolean async) {
         try {
+            if (async) {
+                // Durable path: any replica's worker may pick it up; poll
+                // /render/jobs/{id}
+                RenderJob job = renderJobService.enqueue(request.strategy(), request.rawText(), request.sessionId());
+                return Response.accepted(renderJobService.toStatus(job))
+                        .location(java.net.URI.create("/api/render/jobs/" + job.id))
+                        .build();
+            }
+
             // 1. Render Slide (Long Running)
             SlideService.SlideResponse response = slideService.renderSlide(null, request.strategy(), request.rawText());
 
-            // 2. Persist History (Short Transaction)
+            // 2. Persist History and Chat Session (Short Transaction)
             try {
-                String jsonEntry = objectMapper.writeValueAsString(response);
-                GenerationHistory history = new GenerationHistory(null, request.rawText(), jsonEntry,
-                        response.actionTitle());
-                history.persist();
-
-                // 3. Update Chat Session if exists
-                if (request.sessionId() != null) {
-                    chatService.addMessage(request.sessionId(), "user", request.rawText());
-                    chatService.addMessage(request.sessionId(), "assistant",
-                            "Generated slide: " + response.actionTitle() + " #SLIDE_ID:" + history.id.toString());
-
-                    // 4. Update Title if it's the first message (roughly)
-                    com.projectc.model.ChatSession session = chatService.getSession(request.sessionId());
-                    if (session != null && "New Conversation".equals(session.title)) {
-                        String newTitle = slideService.generateTitle(request.rawText());
-                        chatService.updateTitle(request.sessionId(), newTitle);
-                    }
-                }
+                slideService.saveRender(request.rawText(), request.sessionId(), response);
             } catch (Exception e) {
                 // Log persistence error but return successful response to user
                 System.err.println("Persistence Failed: " + e.getMessage());
@@ -92,6 +138,15 @@ public class SlideResource {
         }
     }
 
+    @GET
+    @Path("/render/jobs/{id}")
+    public Response getRenderJob(@PathParam("id") String id) {
+        RenderJob job = renderJobService.getJob(id);
+        if (job == null)
+            return Response.status(Response.Status.NOT_FOUND).build();
+        return Response.ok(renderJobService.toStatus(job)).build();
+    }
+
     @POST
     @Path("/chats")
     public Response createChat(StartChatRequest request) {
@@ -135,30 +190,15 @@ public class SlideResource {
     public Response generate(GenerateRequest request) {
         try {
             // Backward Compatibility Wrapper
-            SlideService.SlideResponse response = slideService.generateSlide(request.rawText());
+            SlideService.SlideResponse response = slideService.generateSlide(request.rawText(),
+                    speculationService.take(currentUser(), request.rawText()).orElse(null));
 
             // Persist
             // Persist
             try {
                 if (response.htmlCode() != null && !response.htmlCode().isEmpty()) {
                     // It's a visual slide
-                    String jsonEntry = objectMapper.writeValueAsString(response);
-                    GenerationHistory history = new GenerationHistory(null, request.rawText(), jsonEntry,
-                            response.actionTitle());
-                    history.persist();
-
-                    if (request.sessionId() != null) {
-                        chatService.addMessage(request.sessionId(), "user", request.rawText());
-                        chatService.addMessage(request.sessionId(), "assistant",
-                                "Generated slide: " + response.actionTitle() + " #SLIDE_ID:" + history.id.toString());
-
-                        // Auto Rename Title for Slide
-                        com.projectc.model.ChatSession session = chatService.getSession(request.sessionId());
-                        if (session != null && "New Conversation".equals(session.title)) {
-                            String newTitle = slideService.generateTitle(request.rawText());
-                            chatService.updateTitle(request.sessionId(), newTitle);
-                        }
-                    }
+                    slideService.saveRender(request.rawText(), request.sessionId(), response);
                 } else {
                     // It's just a conversation/greeting
                     if (request.sessionId() != null) {
@@ -187,6 +227,20 @@ public class SlideResource {
         return GenerationHistory.listAll();
     }
 
+    @GET
+    @Path("/history/similar")
+    public List<SimilarSlide> similarHistory(@QueryParam("q") String query,
+            @QueryParam("limit") @DefaultValue("5") int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        int bounded = Math.max(1, Math.min(limit, MAX_SIMILAR_LIMIT));
+        return similarityIndex.findSimilar(query, null, bounded, searchMinScore).stream()
+                .map(m -> new SimilarSlide(m.historyId(), m.slideHeader(), m.userInput(), m.score(),
+                        m.score() >= duplicateThreshold))
+                .toList();
+    }
+
     @GET
     @Path("/history/{id}")
     public Response getHistory(@PathParam("id") String id) {
@@ -200,6 +254,31 @@ public class SlideResource {
         return Response.ok(history).build();
     }
 
+    // Indented HTML of a stored slide, for viewing the source in the UI
+    @GET
+    @Path("/history/{id}/source")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response getHistorySource(@PathParam("id") String id) {
+        if (id == null || !org.bson.types.ObjectId.isValid(id)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        GenerationHistory history = GenerationHistory.findById(new org.bson.types.ObjectId(id));
+        if (history == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        try {
+            SlideResponse slide = objectMapper.readValue(history.jsonOutput, SlideResponse.class);
+            return Response.ok(htmlCompactor.prettyPrint(slide.htmlCode())).build();
+        } catch (Exception e) {
+            return Response.serverError().entity("Error reading slide: " + e.getMessage()).build();
+        }
+    }
+
+    // Email of the caller if a valid bearer token was sent
+    private String currentUser() {
+        return jwt != null ? jwt.getName() : null;
+    }
+
     // DTO
     public record GenerateRequest(String rawText, String sessionId) {
     }
@@ -208,6 +287,10 @@ public class SlideResource {
             String sessionId) {
     }
 
+    public record SimilarSlide(String historyId, String slideHeader, String userInput, double score,
+            boolean nearDuplicate) {
+    }
+
     public record StartChatRequest(String userId, String title) {
     }
 
@@ -0,0 +1,205 @@
+package com.projectc.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.projectc.model.ChatEvent;
+import com.projectc.model.ChatSession;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.websockets.next.WebSocketConnection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.bson.BsonDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes chat session changes to every open WebSocket of the owning user.
+ * With {@code chat.events.broker=mongo} events are relayed through the
+ * {@code chat_events} collection so that a tab connected to one replica sees
+ * changes made on another, without sticky sessions or polling.
+ */
+@ApplicationScoped
+public class ChatEventService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChatEventService.class);
+
+    private static final long EVENT_TTL_MINUTES = 10;
+    private static final long WATCH_RETRY_MILLIS = 5000;
+    // ChangeStreamHistoryLost / ChangeStreamFatalError: the resume token is unusable
+    private static final Set<Integer> UNRESUMABLE_CODES = Set.of(286, 280);
+
+    @ConfigProperty(name = "chat.events.broker", defaultValue = "local")
+    String broker;
+
+    // userId -> open sockets on this node
+    private final Map<String, Set<WebSocketConnection>> connections = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread watcher;
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!useMongo()) {
+            LOG.info("Chat events: local broker (single node fan-out)");
+            return;
+        }
+        try {
+            ChatEvent.mongoCollection().createIndex(Indexes.ascending("createdAt"),
+                    new IndexOptions().expireAfter(EVENT_TTL_MINUTES, TimeUnit.MINUTES));
+        } catch (Exception e) {
+            LOG.error("Failed to create TTL index on chat_events", e);
+        }
+        running = true;
+        watcher = new Thread(this::watch, "chat-event-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        LOG.info("Chat events: Mongo change stream broker started");
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        running = false;
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    // --- Socket registry ---
+
+    public void register(String userId, WebSocketConnection connection) {
+        connections.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(connection);
+    }
+
+    public void unregister(String userId, WebSocketConnection connection) {
+        connections.computeIfPresent(userId, (k, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    // --- Publishers ---
+
+    public void messageAppended(ChatSession session, String role, String content) {
+        publish(new SessionEvent("MESSAGE_APPENDED", session.userId, session.id.toString(), null, role, content,
+                null));
+    }
+
+    public void titleUpdated(ChatSession session) {
+        publish(new SessionEvent("TITLE_UPDATED", session.userId, session.id.toString(), session.title, null, null,
+                null));
+    }
+
+    public void slideReady(ChatSession session, String content, String slideId) {
+        publish(new SessionEvent("SLIDE_READY", session.userId, session.id.toString(), null, "assistant", content,
+                slideId));
+    }
+
+    private void publish(SessionEvent event) {
+        if (event.userId() == null) {
+            return;
+        }
+        try {
+            if (useMongo()) {
+                // Delivered back to this node (and all others) by the change stream
+                new ChatEvent(event.type(), event.userId(), event.sessionId(), event.title(), event.role(),
+                        event.content(), event.slideId()).persist();
+            } else {
+                deliver(event);
+            }
+        } catch (Exception e) {
+            // Push is best effort; the client can always re-fetch the session
+            LOG.error("Failed to publish chat event {}", event.type(), e);
+        }
+    }
+
+    private void deliver(SessionEvent event) {
+        Set<WebSocketConnection> targets = connections.get(event.userId());
+        if (targets == null) {
+            return;
+        }
+        for (WebSocketConnection connection : targets) {
+            if (!connection.isOpen()) {
+                unregister(event.userId(), connection);
+                continue;
+            }
+            connection.sendText(event).subscribe().with(
+                    ok -> {
+                    },
+                    err -> LOG.warn("Failed to push chat event to {}: {}", connection.id(), err.getMessage()));
+        }
+    }
+
+    // --- Change stream relay ---
+
+    private void watch() {
+        BsonDocument resumeToken = null;
+        while (running) {
+            MongoCollection<ChatEvent> collection = ChatEvent.mongoCollection();
+            var stream = collection.watch(List.of(Aggregates.match(Filters.eq("operationType", "insert"))));
+            if (resumeToken != null) {
+                stream = stream.resumeAfter(resumeToken);
+            }
+            boolean opened = false;
+            try (MongoChangeStreamCursor<ChangeStreamDocument<ChatEvent>> cursor = stream.cursor()) {
+                opened = true;
+                while (running) {
+                    ChangeStreamDocument<ChatEvent> change = cursor.next();
+                    resumeToken = change.getResumeToken();
+                    if (change.getFullDocument() != null) {
+                        deliver(toSessionEvent(change.getFullDocument()));
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                if (resumeToken != null && (!opened || isUnresumable(e))) {
+                    // The token has aged out of the oplog: events in the gap are lost (push
+                    // is best effort), but retrying the same token would never succeed
+                    LOG.warn("Cannot resume chat event change stream, restarting from now: {}", e.getMessage());
+                    resumeToken = null;
+                    continue;
+                }
+                LOG.warn("Chat event change stream interrupted, retrying in {} ms: {}", WATCH_RETRY_MILLIS,
+                        e.getMessage());
+                try {
+                    Thread.sleep(WATCH_RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean isUnresumable(Exception e) {
+        return e instanceof MongoException me
+                && (UNRESUMABLE_CODES.contains(me.getCode()) || me.hasErrorLabel("NonResumableChangeStreamError"));
+    }
+
+    private static SessionEvent toSessionEvent(ChatEvent e) {
+        return new SessionEvent(e.type, e.userId, e.sessionId, e.title, e.role, e.content, e.slideId);
+    }
+
+    private boolean useMongo() {
+        return "mongo".equalsIgnoreCase(broker);
+    }
+
+    // --- Records ---
+
+    public record SessionEvent(String type, String userId, String sessionId, String title, String role,
+            String content, String slideId) {
+    }
+}
@@ -2,6 +2,7 @@ package com.projectc.service;
 
 import com.projectc.model.ChatSession;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import org.bson.types.ObjectId;
 
 import java.util.List;
@@ -9,6 +10,9 @@ import java.util.List;
 @ApplicationScoped
 public class ChatService {
 
+    @Inject
+    ChatEventService chatEvents;
+
     public ChatSession createSession(String userId, String initialTitle) {
         ChatSession session = new ChatSession(userId, initialTitle);
         session.persist();
@@ -32,6 +36,7 @@ public class ChatService {
             if (session != null) {
                 session.addMessage(role, content);
                 session.update();
+                chatEvents.messageAppended(session, role, content);
             }
         } catch (Exception e) {
             // Log but don't crash
@@ -39,12 +44,27 @@ public class ChatService {
         }
     }
 
+    public void addSlideMessage(String sessionId, String actionTitle, String slideId) {
+        try {
+            ChatSession session = getSession(sessionId);
+            if (session != null) {
+                String content = "Generated slide: " + actionTitle + " #SLIDE_ID:" + slideId;
+                session.addMessage("assistant", content);
+                session.update();
+                chatEvents.slideReady(session, content, slideId);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to save slide message: " + e.getMessage());
+        }
+    }
+
     public void updateTitle(String sessionId, String newTitle) {
         try {
             ChatSession session = getSession(sessionId);
             if (session != null) {
                 session.title = newTitle;
                 session.update();
+                chatEvents.titleUpdated(session);
             }
         } catch (Exception e) {
             System.err.println("Failed to update chat title: " + e.getMessage());
@@ -0,0 +1,223 @@
+package com.projectc.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Render-preserving compaction for model generated slide HTML. Collapses
+ * whitespace and comments and shortens ids, so the Corrector reads (and
+ * re-emits) fewer tokens. Inline styles are left alone: scripts animate them
+ * through {@code el.style}, and moving them into classes changes precedence.
+ * {@link #prettyPrint(String)} re-indents the result for display.
+ */
+@ApplicationScoped
+public class HtmlCompactor {
+
+    private static final Set<String> VOID = Set.of("area", "base", "br", "col", "embed", "hr", "img", "input",
+            "link", "meta", "source", "track", "wbr");
+
+    private static final Pattern RAW_BLOCK = Pattern.compile(
+            "<(script|style|pre|textarea)\\b[^>]*>.*?</\\1\\s*>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern COMMENT = Pattern.compile("<!--(?!\\[if).*?-->", Pattern.DOTALL);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern START_TAG = Pattern.compile("<([a-zA-Z][\\w-]*)(\\s[^<>]*?)?(/?)>");
+    private static final Pattern ID_ATTR = Pattern.compile("\\sid\\s*=\\s*[\"']([A-Za-z][\\w-]*)[\"']");
+    // A DOM lookup whose argument is not a plain string literal ('bar-' + i,
+    // `kpi${i}`, a variable), or a selector that matches ids by prefix/substring
+    private static final Pattern DYNAMIC_LOOKUP = Pattern.compile(
+            "(?:getElementById|querySelector(?:All)?)\\(\\s*(?!([\"'])[^\"'`]*\\1\\s*\\))"
+                    + "|\\[\\s*id\\s*[\\^*$|~]=");
+    private static final Pattern TOKEN = Pattern.compile("<!--.*?-->|<[^>]+>|[^<]+", Pattern.DOTALL);
+
+    private static final int MIN_ID_LENGTH = 4;
+
+    public String compact(String html) {
+        if (html == null || html.isBlank()) {
+            return html;
+        }
+        return shortenIds(collapseWhitespace(html));
+    }
+
+    public String prettyPrint(String html) {
+        if (html == null || html.isBlank()) {
+            return html;
+        }
+        StringBuilder sb = new StringBuilder(html.length() * 2);
+        int depth = 0;
+        int pos = 0;
+        Matcher raw = RAW_BLOCK.matcher(html);
+        Matcher token = TOKEN.matcher(html);
+        int nextRaw = raw.find() ? raw.start() : -1;
+        while (pos < html.length()) {
+            if (pos == nextRaw) {
+                // Raw text elements are emitted verbatim
+                indent(sb, depth).append(raw.group()).append('\n');
+                pos = raw.end();
+                nextRaw = raw.find() ? raw.start() : -1;
+                continue;
+            }
+            if (!token.find(pos)) {
+                break;
+            }
+            String t = token.group();
+            pos = token.end();
+            if (!t.startsWith("<")) {
+                String text = t.strip();
+                if (!text.isEmpty()) {
+                    indent(sb, depth).append(text).append('\n');
+                }
+            } else if (t.startsWith("</")) {
+                depth = Math.max(0, depth - 1);
+                indent(sb, depth).append(t).append('\n');
+            } else {
+                String name = tagName(t);
+                int close = pos;
+                if (!name.isEmpty()) {
+                    // Keep leaf elements like <span>Text</span> on one line
+                    int lt = html.indexOf('<', pos);
+                    if (lt > 0 && html.startsWith("</" + name + ">", lt)) {
+                        close = lt + name.length() + 3;
+                    }
+                }
+                if (close > pos) {
+                    indent(sb, depth).append(t).append(html, pos, close).append('\n');
+                    pos = close;
+                    continue;
+                }
+                indent(sb, depth).append(t).append('\n');
+                if (!t.startsWith("<!") && !t.endsWith("/>") && !VOID.contains(name)) {
+                    depth++;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    // --- Whitespace ---
+
+    private String collapseWhitespace(String html) {
+        StringBuilder sb = new StringBuilder(html.length());
+        Matcher raw = RAW_BLOCK.matcher(html);
+        int last = 0;
+        while (raw.find()) {
+            sb.append(collapseMarkup(html.substring(last, raw.start())));
+            sb.append(compactRaw(raw.group(1).toLowerCase(Locale.ROOT), raw.group()));
+            last = raw.end();
+        }
+        sb.append(collapseMarkup(html.substring(last)));
+        return sb.toString().strip();
+    }
+
+    // Outside raw text any whitespace run renders as one space; keep a newline
+    // where there was one so the output stays diffable
+    private String collapseMarkup(String markup) {
+        String noComments = COMMENT.matcher(markup).replaceAll("");
+        Matcher m = WHITESPACE.matcher(noComments);
+        StringBuilder sb = new StringBuilder(noComments.length());
+        while (m.find()) {
+            m.appendReplacement(sb, m.group().indexOf('\n') >= 0 ? "\n" : " ");
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    private String compactRaw(String tag, String block) {
+        // pre/textarea are whitespace-significant; template literals may be too
+        if (tag.equals("pre") || tag.equals("textarea") || block.indexOf('`') >= 0) {
+            return block;
+        }
+        StringBuilder sb = new StringBuilder(block.length());
+        for (String line : block.split("\n")) {
+            String stripped = line.strip();
+            if (!stripped.isEmpty()) {
+                if (sb.length() > 0) {
+                    sb.append('\n');
+                }
+                sb.append(stripped);
+            }
+        }
+        return sb.toString();
+    }
+
+    // --- Id shortening ---
+
+    private String shortenIds(String html) {
+        // Ids built at runtime cannot be followed through a rename, so leave
+        // the whole document alone
+        if (DYNAMIC_LOOKUP.matcher(html).find()) {
+            return html;
+        }
+        Matcher m = ID_ATTR.matcher(html);
+        List<String> ids = new ArrayList<>();
+        while (m.find()) {
+            if (m.group(1).length() >= MIN_ID_LENGTH && !ids.contains(m.group(1))) {
+                ids.add(m.group(1));
+            }
+        }
+
+        String out = html;
+        int n = 0;
+        for (String id : ids) {
+            // Rename only if every mention of the id is a reference we understand,
+            // so text that happens to contain the same word is never touched
+            if (countMatches(out, word(id)) != countMatches(out, references(id))) {
+                continue;
+            }
+            String shortId;
+            do {
+                shortId = "i" + Integer.toString(n++, 36);
+            } while (containsWord(out, shortId));
+            out = word(id).matcher(out).replaceAll(shortId);
+        }
+        return out;
+    }
+
+    private static Pattern word(String s) {
+        return Pattern.compile("(?<![\\w-])" + Pattern.quote(s) + "(?![\\w-])");
+    }
+
+    private static Pattern references(String id) {
+        String q = Pattern.quote(id);
+        return Pattern.compile(
+                "(?<=\\sid=[\"'])" + q + "(?=[\"'])"
+                        + "|(?<=\\sfor=[\"'])" + q + "(?=[\"'])"
+                        + "|(?<=\\saria-(?:labelledby|describedby|controls)=[\"'])" + q + "(?=[\"'])"
+                        + "|(?<=href=[\"']#)" + q + "(?=[\"'])"
+                        + "|(?<=getElementById\\(\\s?[\"'])" + q + "(?=[\"'])"
+                        + "|(?<=[\"']#)" + q + "(?=[\"'])"
+                        + "|(?<=#)" + q + "(?=\\s*[{,.:>\\[ ])");
+    }
+
+    // --- Helpers ---
+
+    private static int countMatches(String s, Pattern p) {
+        Matcher m = p.matcher(s);
+        int count = 0;
+        while (m.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean containsWord(String s, String w) {
+        return word(w).matcher(s).find();
+    }
+
+    private static StringBuilder indent(StringBuilder sb, int depth) {
+        for (int i = 0; i < depth; i++) {
+            sb.append("  ");
+        }
+        return sb;
+    }
+
+    private static String tagName(String tag) {
+        Matcher m = START_TAG.matcher(tag);
+        return m.lookingAt() ? m.group(1).toLowerCase(Locale.ROOT) : "";
+    }
+}
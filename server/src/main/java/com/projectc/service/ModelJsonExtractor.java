@@ -0,0 +1,269 @@
+package com.projectc.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass extraction of the first JSON object in a model response.
+ * Skips leading prose and code fences, and repairs the defects we see in
+ * practice: raw newlines/tabs and stray quotes inside strings (usually in
+ * {@code htmlCode}), trailing commas, and output truncated mid-string or
+ * with unclosed braces. Well-formed JSON passes through unchanged.
+ * <p>
+ * Stray-quote repair is a guess. A repaired object that closes before the
+ * reply (up to any closing fence) is used up is flagged {@code ambiguous}
+ * and must not be trusted.
+ */
+@ApplicationScoped
+public class ModelJsonExtractor {
+
+    private static final int MAX_DEPTH = 256;
+
+    // A quote that plausibly ends a value: followed by another key, or by the
+    // brace that ends the reply
+    private static final Pattern VALUE_END = Pattern.compile("\"(?=\\s*(?:,\\s*\"[^\"\\n]*\"\\s*:|}\\s*\\z))");
+
+    public Result extract(String text) {
+        if (text == null) {
+            return new Result("", false, false, false, false);
+        }
+        int start = findStart(text);
+        if (start < 0) {
+            return new Result(text, false, false, false, false);
+        }
+
+        StringBuilder out = new StringBuilder(text.length() - start + 16);
+        char[] stack = new char[MAX_DEPTH]; // open '{' / '['
+        boolean[] expectingKey = new boolean[MAX_DEPTH];
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        boolean stringIsKey = false;
+        boolean repaired = false;
+        boolean stringHadStray = false;
+        // The reply proper ends at the closing fence, if any
+        int fence = text.indexOf("```", start);
+        int end = fence < 0 ? text.length() : fence;
+        int lastValueEnd = lastValueEnd(text, start, end);
+
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (inString) {
+                if (escaped) {
+                    out.append(c);
+                    escaped = false;
+                } else if (c == '\\') {
+                    out.append(c);
+                    escaped = true;
+                } else if (c == '"') {
+                    if (closesString(text, i + 1, depth > 0 ? stack[depth - 1] : '{', stringIsKey)
+                            && !(stringHadStray && closesObject(text, i + 1, depth) && lastValueEnd > i)) {
+                        out.append(c);
+                        inString = false;
+                    } else {
+                        // Unescaped quote inside a value, e.g. {"k": "v"} in a script
+                        out.append("\\\"");
+                        repaired = true;
+                        stringHadStray = true;
+                    }
+                } else if (c < 0x20) {
+                    out.append(escapeControl(c));
+                    repaired = true;
+                } else {
+                    out.append(c);
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    stringHadStray = false;
+                    stringIsKey = depth > 0 && stack[depth - 1] == '{' && expectingKey[depth - 1];
+                    out.append(c);
+                }
+                case '{', '[' -> {
+                    if (depth == MAX_DEPTH) {
+                        return new Result(out.toString(), true, repaired, false, false);
+                    }
+                    stack[depth] = c;
+                    expectingKey[depth] = c == '{';
+                    depth++;
+                    out.append(c);
+                }
+                case '}', ']' -> {
+                    if (dropTrailingComma(out)) {
+                        repaired = true;
+                    }
+                    char open = c == '}' ? '{' : '[';
+                    int match = depth - 1;
+                    while (match >= 0 && stack[match] != open) {
+                        match--;
+                    }
+                    if (match < 0) {
+                        repaired = true; // Stray closer
+                        continue;
+                    }
+                    while (depth > match + 1) {
+                        // Mismatched closer: close what the model left open first
+                        out.append(stack[--depth] == '{' ? '}' : ']');
+                        repaired = true;
+                    }
+                    depth--;
+                    out.append(c);
+                    if (depth == 0) {
+                        return new Result(out.toString(), true, repaired, false,
+                                repaired && skipWhitespace(text, i + 1) < end);
+                    }
+                }
+                case ':' -> {
+                    if (depth > 0) {
+                        expectingKey[depth - 1] = false;
+                    }
+                    out.append(c);
+                }
+                case ',' -> {
+                    if (depth > 0 && stack[depth - 1] == '{') {
+                        expectingKey[depth - 1] = true;
+                    }
+                    out.append(c);
+                }
+                case '`' -> {
+                    // Closing code fence before the object closed: treat as truncation
+                    i = text.length();
+                }
+                default -> out.append(c);
+            }
+        }
+
+        // Truncated output: close whatever is still open
+        if (inString) {
+            if (escaped) {
+                out.setLength(out.length() - 1);
+            }
+            out.append('"');
+            if (stringIsKey) {
+                out.append(":null");
+            }
+        } else {
+            int last = lastNonWhitespace(out);
+            if (last >= 0 && out.charAt(last) == ':') {
+                out.append("null");
+            } else if (last >= 0 && out.charAt(last) == '"' && depth > 0 && stack[depth - 1] == '{'
+                    && expectingKey[depth - 1]) {
+                out.append(":null"); // Dangling key
+            }
+        }
+        dropTrailingComma(out);
+        while (depth > 0) {
+            out.append(stack[--depth] == '{' ? '}' : ']');
+        }
+        return new Result(out.toString(), true, true, true, false);
+    }
+
+    // Prefer the first '{' after a code fence; fall back to the first '{' at all
+    private static int findStart(String text) {
+        int fence = text.indexOf("```");
+        if (fence >= 0) {
+            int brace = text.indexOf('{', fence);
+            if (brace >= 0) {
+                return brace;
+            }
+        }
+        return text.indexOf('{');
+    }
+
+    // A real closing quote is followed by ':' (keys), or by the closer of its
+    // own container, or by ',' and then another element or key (values)
+    private static boolean closesString(String text, int from, char container, boolean isKey) {
+        int j = skipWhitespace(text, from);
+        if (j >= text.length()) {
+            return true;
+        }
+        char next = text.charAt(j);
+        if (isKey) {
+            return next == ':';
+        }
+        if (next == '}' || next == ']') {
+            return next == (container == '{' ? '}' : ']');
+        }
+        if (next == ',') {
+            if (container != '{') {
+                return true;
+            }
+            // In an object the next thing after a comma must be a key, e.g. not
+            // the "Q2" in labels: ["Q1", "Q2"]
+            int k = skipWhitespace(text, j + 1);
+            return k >= text.length() || text.charAt(k) == '}' || (text.charAt(k) == '"' && isKey(text, k));
+        }
+        return false;
+    }
+
+    private static boolean isKey(String text, int quote) {
+        int close = text.indexOf('"', quote + 1);
+        if (close < 0) {
+            return true; // Truncated inside the key
+        }
+        int j = skipWhitespace(text, close + 1);
+        return j >= text.length() || text.charAt(j) == ':';
+    }
+
+    private static int lastValueEnd(String text, int start, int end) {
+        Matcher m = VALUE_END.matcher(text).region(start, end);
+        int last = -1;
+        while (m.find()) {
+            last = m.start();
+        }
+        return last;
+    }
+
+    // True if the quote is followed by the brace that closes the whole object
+    private static boolean closesObject(String text, int from, int depth) {
+        int j = skipWhitespace(text, from);
+        return depth == 1 && j < text.length() && text.charAt(j) == '}';
+    }
+
+    private static boolean dropTrailingComma(StringBuilder out) {
+        int last = lastNonWhitespace(out);
+        if (last >= 0 && out.charAt(last) == ',') {
+            out.setLength(last);
+            return true;
+        }
+        return false;
+    }
+
+    private static int lastNonWhitespace(StringBuilder sb) {
+        int i = sb.length() - 1;
+        while (i >= 0 && Character.isWhitespace(sb.charAt(i))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        int j = from;
+        while (j < text.length() && Character.isWhitespace(text.charAt(j))) {
+            j++;
+        }
+        return j;
+    }
+
+    private static String escapeControl(char c) {
+        return switch (c) {
+            case '\n' -> "\\n";
+            case '\r' -> "\\r";
+            case '\t' -> "\\t";
+            default -> String.format("\\u%04x", (int) c);
+        };
+    }
+
+    // --- Records ---
+
+    // found: an opening brace was located; truncated: input ended before the
+    // object closed; ambiguous: a repaired object closed before the reply did
+    public record Result(String json, boolean found, boolean repaired, boolean truncated, boolean ambiguous) {
+    }
+}
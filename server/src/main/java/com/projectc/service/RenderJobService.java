@@ -0,0 +1,272 @@
+package com.projectc.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.projectc.model.RenderJob;
+import com.projectc.service.SlideService.SlideResponse;
+import com.projectc.service.SlideService.SlideStrategy;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mongo-backed render queue. Any replica may claim a queued job; a claim is a
+ * lease that the owner keeps alive with heartbeats. If a node dies its lease
+ * expires and another node reclaims the job, up to
+ * {@code render.jobs.max-attempts} times.
+ * <p>
+ * Lease times are computed by Mongo ({@code $$NOW} in update pipelines), so
+ * replicas with different clocks or time zones agree on when a lease expired.
+ */
+@ApplicationScoped
+public class RenderJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RenderJobService.class);
+
+    private static final String NOW = "$$NOW";
+
+    @ConfigProperty(name = "render.jobs.workers", defaultValue = "2")
+    int workers;
+
+    @ConfigProperty(name = "render.jobs.lease-seconds", defaultValue = "60")
+    int leaseSeconds;
+
+    @ConfigProperty(name = "render.jobs.max-attempts", defaultValue = "3")
+    int maxAttempts;
+
+    @ConfigProperty(name = "render.jobs.poll-interval-ms", defaultValue = "1000")
+    long pollIntervalMillis;
+
+    @Inject
+    SlideService slideService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private final String nodeId = nodeName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private volatile boolean running;
+    private ExecutorService workerPool;
+    private ScheduledExecutorService heartbeats;
+
+    void onStart(@Observes StartupEvent ev) {
+        try {
+            jobs().createIndex(Indexes.ascending("status", "createdAt"));
+            jobs().createIndex(Indexes.ascending("leaseExpiresAt"));
+        } catch (Exception e) {
+            LOG.error("Failed to create render_jobs indexes", e);
+        }
+        if (workers <= 0) {
+            LOG.info("Render workers disabled on node {}", nodeId);
+            return;
+        }
+        running = true;
+        heartbeats = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "render-heartbeat"));
+        workerPool = Executors.newFixedThreadPool(workers, r -> daemon(r, "render-worker"));
+        for (int i = 0; i < workers; i++) {
+            workerPool.submit(this::workLoop);
+        }
+        LOG.info("Started {} render workers on node {}", workers, nodeId);
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        running = false;
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+            heartbeats.shutdownNow();
+        }
+        try {
+            // Hand in-flight jobs back instead of waiting for their leases to expire.
+            // A deploy is not a failed attempt, so the claim's increment is undone.
+            jobs().updateMany(
+                    Filters.and(Filters.eq("status", RenderJob.RUNNING), Filters.eq("leaseOwner", nodeId)),
+                    release(new Document("status", RenderJob.QUEUED).append("attempts",
+                            new Document("$max", List.of(0, new Document("$subtract", List.of("$attempts", 1)))))));
+        } catch (Exception e) {
+            LOG.warn("Failed to release render leases on shutdown: {}", e.getMessage());
+        }
+    }
+
+    public RenderJob enqueue(SlideStrategy strategy, String rawText, String sessionId) throws Exception {
+        RenderJob job = new RenderJob(objectMapper.writeValueAsString(strategy), rawText, sessionId);
+        job.persist();
+        return job;
+    }
+
+    public RenderJob getJob(String jobId) {
+        if (jobId == null || !ObjectId.isValid(jobId)) {
+            return null;
+        }
+        return RenderJob.findById(new ObjectId(jobId));
+    }
+
+    public JobStatus toStatus(RenderJob job) {
+        SlideResponse result = null;
+        if (job.resultJson != null) {
+            try {
+                result = objectMapper.readValue(job.resultJson, SlideResponse.class);
+            } catch (Exception e) {
+                LOG.error("Corrupt result on render job {}", job.id, e);
+            }
+        }
+        return new JobStatus(job.id.toString(), job.status, job.attempts, job.historyId, job.error, result);
+    }
+
+    // --- Worker ---
+
+    private void workLoop() {
+        while (running) {
+            try {
+                RenderJob job = claim();
+                if (job == null) {
+                    Thread.sleep(pollIntervalMillis);
+                    continue;
+                }
+                process(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.error("Render worker error", e);
+            }
+        }
+    }
+
+    // Atomically take the oldest queued job, or one whose lease has expired
+    private RenderJob claim() {
+        Bson claimable = Filters.or(
+                Filters.eq("status", RenderJob.QUEUED),
+                Filters.and(Filters.eq("status", RenderJob.RUNNING),
+                        Filters.expr(new Document("$lt", List.of("$leaseExpiresAt", NOW)))));
+        List<Bson> lease = List.of(new Document("$set", new Document("status", RenderJob.RUNNING)
+                .append("leaseOwner", literal(nodeId))
+                .append("leaseExpiresAt", leaseExpiry())
+                .append("updatedAt", NOW)
+                .append("attempts", new Document("$add",
+                        List.of(new Document("$ifNull", List.of("$attempts", 0)), 1)))));
+        return jobs().findOneAndUpdate(claimable, lease,
+                new FindOneAndUpdateOptions().sort(Sorts.ascending("createdAt")).returnDocument(ReturnDocument.AFTER));
+    }
+
+    private void process(RenderJob job) throws Exception {
+        if (job.attempts > maxAttempts) {
+            finish(job, new Document("status", RenderJob.FAILED)
+                    .append("error", literal("Gave up after " + maxAttempts + " attempts")));
+            return;
+        }
+
+        LOG.info("Render job {} claimed by {} (attempt {})", job.id, nodeId, job.attempts);
+        long period = Math.max(1, leaseSeconds / 3);
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> extendLease(job), period, period,
+                TimeUnit.SECONDS);
+        try {
+            SlideStrategy strategy = objectMapper.readValue(job.strategyJson, SlideStrategy.class);
+            SlideResponse response = slideService.renderSlide(null, strategy, job.rawText);
+
+            if ("ERROR".equals(response.layout())) {
+                String status = job.attempts < maxAttempts ? RenderJob.QUEUED : RenderJob.FAILED;
+                finish(job, new Document("status", status).append("error", literal(response.conversationText())));
+                return;
+            }
+
+            // Fence on the lease before any side effects so a reclaimed job is saved once
+            if (!finish(job, new Document("status", RenderJob.DONE)
+                    .append("resultJson", literal(objectMapper.writeValueAsString(response))), "error")) {
+                LOG.warn("Render job {} lost its lease; discarding result", job.id);
+                return;
+            }
+            try {
+                String historyId = slideService.saveRender(job.rawText, job.sessionId, response);
+                jobs().updateOne(Filters.eq("_id", job.id), Updates.set("historyId", historyId));
+            } catch (Exception e) {
+                LOG.error("Persistence failed for render job {}", job.id, e);
+            }
+        } finally {
+            heartbeat.cancel(false);
+        }
+    }
+
+    private void extendLease(RenderJob job) {
+        try {
+            jobs().updateOne(owned(job), List.of(new Document("$set",
+                    new Document("leaseExpiresAt", leaseExpiry()).append("updatedAt", NOW))));
+        } catch (Exception e) {
+            LOG.warn("Heartbeat failed for render job {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    // Applies a terminal (or requeue) transition only while we still hold the lease
+    private boolean finish(RenderJob job, Document fields, String... unset) {
+        return jobs().updateOne(owned(job), release(fields, unset)).getModifiedCount() > 0;
+    }
+
+    // Update pipeline that sets fields and drops the lease
+    private static List<Bson> release(Document fields, String... unset) {
+        List<String> removed = new ArrayList<>(List.of("leaseOwner", "leaseExpiresAt"));
+        removed.addAll(List.of(unset));
+        return List.of(new Document("$set", new Document(fields).append("updatedAt", NOW)),
+                new Document("$unset", removed));
+    }
+
+    private Document leaseExpiry() {
+        return new Document("$add", List.of(NOW, leaseSeconds * 1000L));
+    }
+
+    // Pipeline stages read strings starting with '$' as field paths
+    private static Document literal(Object value) {
+        return new Document("$literal", value);
+    }
+
+    private Bson owned(RenderJob job) {
+        return Filters.and(Filters.eq("_id", job.id), Filters.eq("status", RenderJob.RUNNING),
+                Filters.eq("leaseOwner", nodeId));
+    }
+
+    private MongoCollection<RenderJob> jobs() {
+        return RenderJob.mongoCollection();
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private static String nodeName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+
+    // --- Records ---
+
+    public record JobStatus(String jobId, String status, int attempts, String historyId, String error,
+            SlideResponse result) {
+    }
+}
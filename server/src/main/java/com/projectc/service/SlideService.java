@@ -1,7 +1,12 @@
 package com.projectc.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.projectc.client.AnthropicClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -11,9 +16,13 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.RecordComponent;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import com.projectc.model.ChatSession;
 import com.projectc.model.GenerationHistory;
 
 @ApplicationScoped
@@ -33,6 +42,27 @@ public class SlideService {
     @Inject
     ObjectMapper objectMapper;
 
+    @Inject
+    ChatService chatService;
+
+    @Inject
+    SlideSimilarityIndex similarityIndex;
+
+    @Inject
+    HtmlCompactor htmlCompactor;
+
+    @Inject
+    ModelJsonExtractor jsonExtractor;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "similarity.few-shot.count", defaultValue = "2")
+    int fewShotCount;
+
+    @ConfigProperty(name = "similarity.few-shot.min-score", defaultValue = "0.35")
+    double fewShotMinScore;
+
     // 1. Analyze Request (Architect)
     public ArchitectResponse analyzeRequest(String userInput) {
         try {
@@ -44,6 +74,26 @@ public class SlideService {
         }
     }
 
+    // 1b. Speculative Architect Analysis (while the user is still typing).
+    // Non-blocking so that a superseded call can be cancelled upstream; no
+    // continuation retry, a failed or truncated speculation just means submit
+    // runs step 1.
+    public Uni<ArchitectResponse> analyzeRequestAsync(String userInput) {
+        LOG.info("Step 1 (speculative): Architect Analysis for: {}", userInput);
+        Timer.Sample sample = Timer.start(registry);
+        return anthropicClient.chatAsync(apiKey, "2023-06-01", architectRequest(userInput))
+                .map(response -> {
+                    sample.stop(registry.timer("slide.llm.duration", "stage", "architect-speculative"));
+                    ModelJsonExtractor.Result result = jsonExtractor.extract(response.content().get(0).text());
+                    try {
+                        return readJson("architect-speculative", result, ArchitectResponse.class,
+                                result.repaired() ? "repaired" : "clean");
+                    } catch (Exception e) {
+                        throw new RuntimeException("Speculative Architect Analysis Failed: " + e.getMessage());
+                    }
+                });
+    }
+
     // 2. Render Slide (Designer)
     public SlideResponse renderSlide(String userId, SlideStrategy strategy, String userInput) {
         try {
@@ -52,7 +102,8 @@ public class SlideService {
             String designerTemplate = loadResource("/designer-prompt.md");
             String designerSystemPrompt = designerTemplate
                     .replace("{{STRATEGIST_BRIEF}}", objectMapper.writeValueAsString(strategy))
-                    .replace("{{USER_REQUEST}}", userInput);
+                    .replace("{{USER_REQUEST}}", userInput)
+                    .replace("{{REFERENCE_SLIDES}}", referenceSlides(userInput, strategy.actionTitle));
 
             DesignerResponse designerOutput = callDesigner(userInput, designerSystemPrompt);
 
@@ -61,7 +112,7 @@ public class SlideService {
             String correctorTemplate = loadResource("/corrector-prompt.md");
             String correctorSystemPrompt = correctorTemplate
                     .replace("{{STRATEGIST_BRIEF}}", strategy.narrativeGoal)
-                    .replace("{{DESIGNER_CODE}}", designerOutput.htmlCode)
+                    .replace("{{DESIGNER_CODE}}", compactHtml("designer", designerOutput.htmlCode))
                     .replace("{{USER_REQUEST}}", userInput);
 
             DesignerResponse correctedOutput = callCorrector(userInput, correctorSystemPrompt);
@@ -70,19 +121,14 @@ public class SlideService {
             SlideResponse finalResponse = new SlideResponse(
                     "HTML_CODE",
                     correctedOutput.layout_strategy, // Use corrector explanation
-                    correctedOutput.htmlCode,
+                    compactHtml("corrector", correctedOutput.htmlCode),
                     strategy.actionTitle, // Carry over title from Architect
                     null,
                     null);
 
             // Save History to MongoDB
             if (userId != null) {
-                GenerationHistory history = new GenerationHistory(
-                        userId,
-                        userInput,
-                        objectMapper.writeValueAsString(finalResponse),
-                        finalResponse.actionTitle());
-                history.persist();
+                persistHistory(userId, userInput, finalResponse);
             }
 
             return finalResponse;
@@ -96,7 +142,14 @@ public class SlideService {
     // Kept for backward compatibility if needed, but preferred flow is analyze ->
     // render
     public SlideResponse generateSlide(String userInput) {
-        ArchitectResponse plan = analyzeRequest(userInput);
+        return generateSlide(userInput, null);
+    }
+
+    // plan: a precomputed (speculative) Architect result, or null to analyze now
+    public SlideResponse generateSlide(String userInput, ArchitectResponse plan) {
+        if (plan == null) {
+            plan = analyzeRequest(userInput);
+        }
         if ("CHAT".equalsIgnoreCase(plan.intent)) {
             return new SlideResponse("CONVERSATION", plan.reply, null, null, null, null);
         }
@@ -104,25 +157,25 @@ public class SlideService {
     }
 
     private ArchitectResponse callArchitect(String userInput) throws Exception {
+        return callForJson("architect", architectRequest(userInput), ArchitectResponse.class);
+    }
+
+    private AnthropicClient.AnthropicRequest architectRequest(String userInput) {
         // Updated to 8192 tokens to fix JsonEOFException
         String prompt = loadResource("/architect-prompt.md");
 
         // Sanitize input to prevent 400 Bad Request from weird chars
         String safeInput = userInput.replace("\r", "").trim();
 
-        AnthropicClient.AnthropicRequest request = new AnthropicClient.AnthropicRequest(
+        return new AnthropicClient.AnthropicRequest(
                 model, 8192, List.of(new AnthropicClient.Message("user", safeInput)), prompt);
-
-        String json = extractJson(callClaude(request));
-        return objectMapper.readValue(json, ArchitectResponse.class);
     }
 
     private DesignerResponse callDesigner(String userInput, String systemPrompt) throws Exception {
         AnthropicClient.AnthropicRequest request = new AnthropicClient.AnthropicRequest(
                 model, 8192, List.of(new AnthropicClient.Message("user", userInput)), systemPrompt);
 
-        String json = extractJson(callClaude(request));
-        return objectMapper.readValue(json, DesignerResponse.class);
+        return callForJson("designer", request, DesignerResponse.class);
     }
 
     private DesignerResponse callCorrector(String userInput, String systemPrompt) throws Exception {
@@ -131,8 +184,62 @@ public class SlideService {
         AnthropicClient.AnthropicRequest request = new AnthropicClient.AnthropicRequest(
                 model, 8192, List.of(new AnthropicClient.Message("user", "QA Review Required.")), systemPrompt);
 
-        String json = extractJson(callClaude(request));
-        return objectMapper.readValue(json, DesignerResponse.class);
+        return callForJson("corrector", request, DesignerResponse.class);
+    }
+
+    // Persist a finished render to history and its chat session; returns the
+    // history id
+    public String saveRender(String userInput, String sessionId, SlideResponse response) throws Exception {
+        GenerationHistory history = persistHistory(null, userInput, response);
+
+        if (sessionId != null) {
+            chatService.addMessage(sessionId, "user", userInput);
+            chatService.addSlideMessage(sessionId, response.actionTitle(), history.id.toString());
+
+            // Update Title if it's the first message (roughly)
+            ChatSession session = chatService.getSession(sessionId);
+            if (session != null && "New Conversation".equals(session.title)) {
+                chatService.updateTitle(sessionId, generateTitle(userInput));
+            }
+        }
+        return history.id.toString();
+    }
+
+    private GenerationHistory persistHistory(String userId, String userInput, SlideResponse response)
+            throws Exception {
+        GenerationHistory history = new GenerationHistory(userId, userInput,
+                objectMapper.writeValueAsString(response), response.actionTitle());
+        similarityIndex.sign(history, response.conversationText());
+        history.persist();
+        similarityIndex.add(history);
+        return history;
+    }
+
+    // Compact few-shot block: the closest past slides' titles, requests and
+    // layout notes (no HTML, to keep the Designer prompt small)
+    private String referenceSlides(String userInput, String actionTitle) {
+        List<SlideSimilarityIndex.Match> matches = similarityIndex.findSimilar(userInput, actionTitle, fewShotCount,
+                fewShotMinScore);
+        if (matches.isEmpty()) {
+            return "None.";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (SlideSimilarityIndex.Match match : matches) {
+            sb.append("- Title: ").append(match.slideHeader())
+                    .append(" | Request: ").append(truncate(match.userInput(), 200))
+                    .append(" | Layout: ").append(match.layoutNote())
+                    .append('\n');
+        }
+        LOG.info("Designer few-shot: {} reference slides", matches.size());
+        return sb.toString();
+    }
+
+    private static String truncate(String text, int max) {
+        if (text == null) {
+            return "";
+        }
+        String flat = text.replace('\n', ' ').trim();
+        return flat.length() <= max ? flat : flat.substring(0, max) + "...";
     }
 
     public String generateTitle(String userInput) {
@@ -141,38 +248,119 @@ public class SlideService {
                     + userInput;
             AnthropicClient.AnthropicRequest request = new AnthropicClient.AnthropicRequest(
                     model, 100, List.of(new AnthropicClient.Message("user", prompt)), "");
-            return callClaude(request).trim();
+            return callClaude("title", request).trim();
         } catch (Exception e) {
             LOG.error("Failed to generate title", e);
             return "New Conversation";
         }
     }
 
-    private String callClaude(AnthropicClient.AnthropicRequest request) {
+    private String callClaude(String stage, AnthropicClient.AnthropicRequest request) {
+        return complete(stage, request).content().get(0).text();
+    }
+
+    private AnthropicClient.AnthropicResponse complete(String stage, AnthropicClient.AnthropicRequest request) {
+        Timer.Sample sample = Timer.start(registry);
         AnthropicClient.AnthropicResponse response = anthropicClient.chat(apiKey, "2023-06-01", request);
-        return response.content().get(0).text();
+        long nanos = sample.stop(registry.timer("slide.llm.duration", "stage", stage));
+
+        if (response.usage() != null) {
+            registry.counter("slide.llm.tokens", "stage", stage, "type", "input")
+                    .increment(response.usage().input_tokens());
+            registry.counter("slide.llm.tokens", "stage", stage, "type", "output")
+                    .increment(response.usage().output_tokens());
+            LOG.info("Stage {}: {} ms, {} input / {} output tokens", stage, nanos / 1_000_000,
+                    response.usage().input_tokens(), response.usage().output_tokens());
+        }
+        return response;
     }
 
-    private String extractJson(String text) {
-        String jsonText = text;
-        int startJson = text.indexOf("```json");
-        int endJson = text.lastIndexOf("```");
+    // Compacts model HTML and records the saving (~4 chars per token)
+    private String compactHtml(String stage, String html) {
+        if (html == null) {
+            return null;
+        }
+        String compact = htmlCompactor.compact(html);
+        int savedChars = html.length() - compact.length();
+        registry.summary("slide.html.compaction.saved.tokens", "stage", stage).record(savedChars / 4.0);
+        LOG.info("Compacted {} HTML: {} -> {} chars (~{} tokens saved)", stage, html.length(), compact.length(),
+                savedChars / 4);
+        return compact;
+    }
 
-        if (startJson != -1) {
-            int startContent = startJson + 7;
-            if (endJson > startContent) {
-                jsonText = text.substring(startContent, endJson);
-            } else {
-                jsonText = text.substring(startContent);
-            }
-        } else {
-            int openBrace = text.indexOf("{");
-            int closeBrace = text.lastIndexOf("}");
-            if (openBrace != -1 && closeBrace > openBrace) {
-                jsonText = text.substring(openBrace, closeBrace + 1);
-            }
+    // Parses the model's JSON, repairing it locally where possible. A reply
+    // the API cut off at max_tokens costs a second call that continues it
+    // (assistant prefill) instead of regenerating it; closing it locally would
+    // silently drop the rest of htmlCode. Anything else that will not parse
+    // fails without another call.
+    private <T> T callForJson(String stage, AnthropicClient.AnthropicRequest request, Class<T> type)
+            throws Exception {
+        AnthropicClient.AnthropicResponse response = complete(stage, request);
+        String raw = response.content().get(0).text();
+        ModelJsonExtractor.Result result = jsonExtractor.extract(raw);
+        String outcome = result.repaired() ? "repaired" : "clean";
+
+        if (result.truncated() && "max_tokens".equals(response.stop_reason())) {
+            LOG.warn("{} reply hit max_tokens, requesting continuation", stage);
+            // The API rejects a prefill that ends in whitespace
+            String prefix = raw.stripTrailing();
+            List<AnthropicClient.Message> messages = new ArrayList<>(request.messages());
+            messages.add(new AnthropicClient.Message("assistant", prefix));
+            String rest = callClaude(stage + "-continuation", new AnthropicClient.AnthropicRequest(
+                    request.model(), request.max_tokens(), messages, request.system()));
+            result = jsonExtractor.extract(prefix + rest);
+            outcome = "continued";
         }
-        return jsonText;
+        return readJson(stage, result, type, outcome);
+    }
+
+    // Repairs are guesses: a repaired object is only trusted if it used up the
+    // whole reply and has exactly the fields of the target record (an unknown
+    // key means a value was split at a stray quote; Jackson would ignore it)
+    private <T> T readJson(String stage, ModelJsonExtractor.Result result, Class<T> type, String outcome)
+            throws JsonProcessingException {
+        if (!result.found() || result.truncated() || result.ambiguous()) {
+            countJson(stage, "failed");
+            throw new IllegalStateException("No usable JSON in " + stage + " response (found=" + result.found()
+                    + ", truncated=" + result.truncated() + ", ambiguous=" + result.ambiguous() + ")");
+        }
+        JsonNode node;
+        T value;
+        try {
+            node = objectMapper.readTree(result.json());
+            value = objectMapper.treeToValue(node, type);
+        } catch (JsonProcessingException e) {
+            countJson(stage, "failed");
+            throw e;
+        }
+        if (result.repaired() && !hasExactFields(node, type)) {
+            countJson(stage, "failed");
+            throw new IllegalStateException("Repaired " + stage + " JSON does not match " + type.getSimpleName()
+                    + ": " + fieldNames(node));
+        }
+        countJson(stage, outcome);
+        return value;
+    }
+
+    private static boolean hasExactFields(JsonNode node, Class<?> type) {
+        if (!node.isObject() || !type.isRecord()) {
+            return node.isObject();
+        }
+        Set<String> expected = new HashSet<>();
+        for (RecordComponent component : type.getRecordComponents()) {
+            expected.add(component.getName());
+        }
+        return expected.equals(fieldNames(node));
+    }
+
+    private static Set<String> fieldNames(JsonNode node) {
+        Set<String> names = new HashSet<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private void countJson(String stage, String outcome) {
+        registry.counter("slide.llm.json", "stage", stage, "outcome", outcome).increment();
     }
 
     private SlideResponse fallback(String reason) {
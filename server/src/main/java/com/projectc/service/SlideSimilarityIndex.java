@@ -0,0 +1,295 @@
+package com.projectc.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import com.projectc.model.GenerationHistory;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory MinHash/LSH index over past slides (userInput + slideHeader).
+ * Signatures (and a short layout note for few-shot prompts) are stored on each
+ * {@link GenerationHistory} document, so startup only reloads them and new
+ * history is added one entry at a time; the full {@code jsonOutput} is never
+ * read except to backfill documents written before these fields existed. History
+ * written by other replicas is picked up by polling for newer {@code _id}s
+ * every {@code similarity.refresh-seconds}.
+ */
+@ApplicationScoped
+public class SlideSimilarityIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlideSimilarityIndex.class);
+
+    // 32 bands x 2 rows: a pair with Jaccard s becomes a candidate with
+    // probability 1 - (1 - s^2)^32, i.e. ~0.73 at 0.2, ~0.95 at 0.3, ~0.99 at 0.35.
+    // Keep search cutoffs at 0.3 or above so recall stays high.
+    private static final int NUM_HASHES = 64;
+    private static final int ROWS_PER_BAND = 2;
+    private static final int NUM_BANDS = NUM_HASHES / ROWS_PER_BAND;
+    private static final long PRIME = (1L << 31) - 1;
+    // Fixed seed: persisted signatures must stay comparable across restarts
+    private static final long SEED = 0x5EED_C0DEL;
+    // ObjectIds carry a client-side timestamp in seconds; re-read a margin so
+    // inserts from a replica with a lagging clock are not skipped
+    private static final long REFRESH_OVERLAP_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final int MAX_NOTE_LENGTH = 400;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "of", "for", "to", "in", "on", "with", "by", "vs", "is", "are", "that", "this",
+            "create", "make", "show", "showing", "slide", "slides", "please", "me", "about", "our", "my");
+
+    private final long[] hashA = new long[NUM_HASHES];
+    private final long[] hashB = new long[NUM_HASHES];
+
+    @ConfigProperty(name = "similarity.refresh-seconds", defaultValue = "5")
+    int refreshSeconds;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Map<Long, Set<String>>> bands = new ArrayList<>(NUM_BANDS);
+
+    private volatile long newestSeenMillis;
+    private ScheduledExecutorService refresher;
+
+    public SlideSimilarityIndex() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            hashA[i] = 1 + (random.nextLong() & Long.MAX_VALUE) % (PRIME - 1);
+            hashB[i] = (random.nextLong() & Long.MAX_VALUE) % PRIME;
+        }
+        for (int b = 0; b < NUM_BANDS; b++) {
+            bands.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        long start = System.currentTimeMillis();
+        try {
+            int backfilled = load(Filters.empty());
+            LOG.info("Similarity index loaded {} slides ({} backfilled) in {} ms", entries.size(), backfilled,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            LOG.error("Failed to load similarity index", e);
+        }
+        if (refreshSeconds > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "similarity-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    // Picks up history persisted by other replicas; add() is idempotent, so
+    // re-reading the overlap window is harmless
+    private void refresh() {
+        try {
+            long since = Math.max(0, newestSeenMillis - REFRESH_OVERLAP_MILLIS);
+            load(Filters.gt("_id", new ObjectId(new Date(since))));
+        } catch (Exception e) {
+            LOG.warn("Similarity index refresh failed: {}", e.getMessage());
+        }
+    }
+
+    // Returns the number of signatures that had to be backfilled
+    private int load(Bson filter) {
+        int backfilled = 0;
+        // Skip jsonOutput: it holds the full HTML and is not needed here
+        for (GenerationHistory h : GenerationHistory.<GenerationHistory>mongoCollection().find(filter)
+                .projection(Projections.include("userInput", "slideHeader", "minHash", "layoutNote"))) {
+            boolean resign = h.minHash == null || (!h.minHash.isEmpty() && h.minHash.size() != NUM_HASHES);
+            if (resign || h.layoutNote == null) {
+                sign(h, h.layoutNote != null ? h.layoutNote : storedLayoutText(h));
+                GenerationHistory.mongoCollection().updateOne(Filters.eq("_id", h.id), Updates.combine(
+                        Updates.set("minHash", h.minHash), Updates.set("layoutNote", h.layoutNote)));
+                backfilled++;
+            }
+            add(h);
+        }
+        return backfilled;
+    }
+
+    // Sets the signature and layout note on a not-yet-persisted history entry.
+    // Text without usable words gets an empty signature, so it is marked once
+    // instead of being re-signed on every load.
+    public void sign(GenerationHistory history, String layoutText) {
+        List<Integer> sig = signature(history.userInput, history.slideHeader);
+        history.minHash = sig == null ? List.of() : sig;
+        history.layoutNote = note(layoutText);
+    }
+
+    // Only for documents that predate layoutNote
+    private String storedLayoutText(GenerationHistory h) {
+        try {
+            GenerationHistory full = GenerationHistory.<GenerationHistory>mongoCollection()
+                    .find(Filters.eq("_id", h.id)).projection(Projections.include("jsonOutput")).first();
+            if (full == null || full.jsonOutput == null) {
+                return "";
+            }
+            return objectMapper.readTree(full.jsonOutput).path("conversationText").asText("");
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static String note(String text) {
+        if (text == null) {
+            return "";
+        }
+        String flat = text.replace('\n', ' ').trim();
+        return flat.length() <= MAX_NOTE_LENGTH ? flat : flat.substring(0, MAX_NOTE_LENGTH) + "...";
+    }
+
+    public void add(GenerationHistory history) {
+        if (history.id == null || history.minHash == null || history.minHash.size() != NUM_HASHES) {
+            return;
+        }
+        newestSeenMillis = Math.max(newestSeenMillis, history.id.getDate().getTime());
+        String id = history.id.toString();
+        entries.put(id, new Entry(id, history.userInput, history.slideHeader, history.layoutNote, history.minHash));
+        for (int b = 0; b < NUM_BANDS; b++) {
+            bands.get(b).computeIfAbsent(bandKey(history.minHash, b), k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    public List<Match> findSimilar(String userInput, String slideHeader, int limit, double minScore) {
+        List<Integer> query = signature(userInput, slideHeader);
+        if (query == null || limit <= 0) {
+            return List.of();
+        }
+        Set<String> candidates = new HashSet<>();
+        for (int b = 0; b < NUM_BANDS; b++) {
+            Set<String> bucket = bands.get(b).get(bandKey(query, b));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (String id : candidates) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                continue;
+            }
+            double score = estimate(query, entry.signature());
+            if (score >= minScore) {
+                matches.add(new Match(id, entry.userInput(), entry.slideHeader(), entry.layoutNote(), score));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::score).reversed());
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // --- MinHash ---
+
+    private List<Integer> signature(String userInput, String slideHeader) {
+        Set<String> shingles = shingles((userInput == null ? "" : userInput) + " "
+                + (slideHeader == null ? "" : slideHeader));
+        if (shingles.isEmpty()) {
+            return null;
+        }
+        long[] mins = new long[NUM_HASHES];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        for (String shingle : shingles) {
+            long x = (mix(shingle.hashCode()) & Long.MAX_VALUE) % PRIME;
+            for (int i = 0; i < NUM_HASHES; i++) {
+                long h = (hashA[i] * x + hashB[i]) % PRIME;
+                if (h < mins[i]) {
+                    mins[i] = h;
+                }
+            }
+        }
+        List<Integer> sig = new ArrayList<>(NUM_HASHES);
+        for (long m : mins) {
+            sig.add((int) m);
+        }
+        return sig;
+    }
+
+    // Word unigrams and bigrams, minus filler words
+    private static Set<String> shingles(String text) {
+        List<String> words = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                words.add(token);
+            }
+        }
+        Set<String> shingles = new HashSet<>(words);
+        for (int i = 0; i + 1 < words.size(); i++) {
+            shingles.add(words.get(i) + " " + words.get(i + 1));
+        }
+        return shingles;
+    }
+
+    private static double estimate(List<Integer> a, List<Integer> b) {
+        int same = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a.get(i).intValue() == b.get(i).intValue()) {
+                same++;
+            }
+        }
+        return (double) same / NUM_HASHES;
+    }
+
+    private static long bandKey(List<Integer> sig, int band) {
+        int i = band * ROWS_PER_BAND;
+        return ((long) sig.get(i) << 32) | (sig.get(i + 1) & 0xFFFFFFFFL);
+    }
+
+    // Spreads String.hashCode bits (murmur3 finalizer)
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // --- Records ---
+
+    private record Entry(String id, String userInput, String slideHeader, String layoutNote,
+            List<Integer> signature) {
+    }
+
+    public record Match(String historyId, String userInput, String slideHeader, String layoutNote, double score) {
+    }
+}
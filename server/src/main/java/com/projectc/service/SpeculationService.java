@@ -0,0 +1,312 @@
+package com.projectc.service;
+
+import com.projectc.service.SlideService.ArchitectResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the Architect on partial input while the user is still typing, so that
+ * on submit the pipeline can start at the Designer. Each user has at most one
+ * speculation in flight; a newer input cancels the older HTTP call. Every
+ * started call (superseded or not) spends from a per-user budget that refills
+ * at {@code speculation.budget-per-minute}.
+ * <p>
+ * Speculations and budgets live in this node's memory, so with several
+ * replicas the load balancer must pin a user to one node (session affinity);
+ * otherwise submits simply miss and run the Architect as before.
+ */
+@ApplicationScoped
+public class SpeculationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpeculationService.class);
+
+    private static final int MIN_INPUT_LENGTH = 12;
+    private static final long RESULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // A typo fix inside one long word still gets the same plan
+    private static final int MAX_TYPO_EDITS = 1;
+    private static final int MIN_TYPO_WORD_LENGTH = 6;
+    private static final double EWMA_WEIGHT = 0.2;
+    // Signs and decimal points are part of the number: "-5%" is not "5%", "2.5" is not "25"
+    private static final Pattern NUMBER = Pattern.compile("(?:(?<![\\p{L}\\p{Nd}])[-+\u2212])?\\d+(?:[.,]\\d+)*");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    @ConfigProperty(name = "speculation.budget-per-minute", defaultValue = "10")
+    int budgetPerMinute;
+
+    // Starting estimate of an Architect call, refined from completed speculations
+    @ConfigProperty(name = "speculation.expected-ms", defaultValue = "8000")
+    long initialExpectedMillis;
+
+    @Inject
+    SlideService slideService;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, Speculation> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    private volatile double expectedMillis = -1;
+
+    public enum Outcome {
+        STARTED, UNCHANGED, TOO_SHORT, BUDGET_EXCEEDED
+    }
+
+    public Outcome speculate(String userId, String rawText) {
+        String normalized = normalize(rawText);
+        if (normalized.length() < MIN_INPUT_LENGTH) {
+            return Outcome.TOO_SHORT;
+        }
+        String key = hash(normalized);
+
+        Speculation current = inFlight.get(userId);
+        if (current != null && current.key().equals(key) && !current.isStale()) {
+            return Outcome.UNCHANGED;
+        }
+        if (!budgets.computeIfAbsent(userId, k -> new Budget(budgetPerMinute)).tryAcquire()) {
+            count("budget_exceeded");
+            return Outcome.BUDGET_EXCEEDED;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        CompletableFuture<ArchitectResponse> result = new CompletableFuture<>();
+        Cancellable call = slideService.analyzeRequestAsync(rawText)
+                .subscribe().with(response -> {
+                    observeDuration(System.currentTimeMillis() - startedAt);
+                    result.complete(response);
+                }, result::completeExceptionally);
+        Speculation previous = inFlight.put(userId, new Speculation(key, normalized, result, call, startedAt));
+        if (previous != null) {
+            supersede(previous);
+        }
+        count("started");
+        return Outcome.STARTED;
+    }
+
+    public void cancel(String userId) {
+        Speculation previous = inFlight.remove(userId);
+        if (previous != null) {
+            supersede(previous);
+        }
+    }
+
+    // Consumes the user's speculation if it matches the submitted input. A
+    // running one is waited for only as long as a typical call would still
+    // need (plus slack); one that is overdue is abandoned, since running the
+    // Architect afresh is then likely to be faster.
+    public Optional<ArchitectResponse> take(String userId, String rawText) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        Speculation speculation = inFlight.remove(userId);
+        if (speculation == null) {
+            return Optional.empty();
+        }
+        String normalized = normalize(rawText);
+        if (speculation.isStale() || !matches(speculation.normalized(), normalized)) {
+            stop(speculation);
+            count("miss");
+            return Optional.empty();
+        }
+        long waitMillis = remainingMillis(speculation);
+        try {
+            ArchitectResponse response = speculation.result().get(waitMillis, TimeUnit.MILLISECONDS);
+            count("hit");
+            LOG.info("Reusing speculative Architect result for {}", userId);
+            return Optional.of(response);
+        } catch (TimeoutException e) {
+            LOG.info("Speculative Architect call for {} overdue after {} ms, starting afresh", userId,
+                    System.currentTimeMillis() - speculation.startedAt());
+            stop(speculation);
+            count("timeout");
+            return Optional.empty();
+        } catch (Exception e) {
+            LOG.warn("Speculative Architect result unusable: {}", e.getMessage());
+            count("miss");
+            return Optional.empty();
+        }
+    }
+
+    // A newer draft or an explicit cancel replaced a running speculation
+    private void supersede(Speculation speculation) {
+        if (stop(speculation)) {
+            count("superseded");
+        }
+    }
+
+    // Returns true if the call was still running
+    private static boolean stop(Speculation speculation) {
+        if (speculation.result().isDone()) {
+            return false;
+        }
+        speculation.call().cancel();
+        speculation.result().cancel(false);
+        return true;
+    }
+
+    // Whitespace, punctuation and case never change the plan; a different
+    // number (year, quarter, amount) or a different word does. The only edit
+    // allowed is a small typo fix inside one long word.
+    static boolean matches(String speculated, String normalized) {
+        if (speculated.equals(normalized)) {
+            return true;
+        }
+        if (!numbers(speculated).equals(numbers(normalized))) {
+            return false;
+        }
+        if (NON_WORD.matcher(speculated).replaceAll("").equals(NON_WORD.matcher(normalized).replaceAll(""))) {
+            return true;
+        }
+        String[] a = words(speculated);
+        String[] b = words(normalized);
+        if (a.length != b.length) {
+            return false;
+        }
+        int changed = -1;
+        for (int i = 0; i < a.length; i++) {
+            if (!a[i].equals(b[i])) {
+                if (changed >= 0) {
+                    return false;
+                }
+                changed = i;
+            }
+        }
+        return changed >= 0 && isTypo(a[changed], b[changed]);
+    }
+
+    private static boolean isTypo(String a, String b) {
+        return Math.min(a.length(), b.length()) >= MIN_TYPO_WORD_LENGTH
+                && !NUMBER.matcher(a).find() && !NUMBER.matcher(b).find()
+                && withinEdits(a, b, MAX_TYPO_EDITS);
+    }
+
+    // Milliseconds still worth waiting: the expected duration left, plus 25%
+    // slack, never more than one whole expected call
+    private long remainingMillis(Speculation speculation) {
+        double expected = expectedMillis > 0 ? expectedMillis : initialExpectedMillis;
+        long elapsed = System.currentTimeMillis() - speculation.startedAt();
+        return (long) Math.max(0, Math.min(expected, expected * 1.25 - elapsed));
+    }
+
+    private void observeDuration(long millis) {
+        double current = expectedMillis;
+        expectedMillis = current > 0 ? current + EWMA_WEIGHT * (millis - current) : millis;
+    }
+
+    private void count(String outcome) {
+        registry.counter("slide.speculation", "outcome", outcome).increment();
+    }
+
+    // Case, whitespace and trailing punctuation do not change the Architect's plan
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String s = text.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+        return s.replaceAll("[\\p{Punct}\\s]+$", "");
+    }
+
+    private static List<String> numbers(String text) {
+        List<String> numbers = new ArrayList<>();
+        Matcher m = NUMBER.matcher(text);
+        while (m.find()) {
+            numbers.add(m.group());
+        }
+        return numbers;
+    }
+
+    private static String[] words(String text) {
+        return Arrays.stream(NON_WORD.split(text)).filter(w -> !w.isEmpty()).toArray(String[]::new);
+    }
+
+    private static String hash(String normalized) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            return Integer.toHexString(normalized.hashCode());
+        }
+    }
+
+    // Levenshtein with early exit: true if a and b are at most max edits apart
+    private static boolean withinEdits(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return false;
+        }
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > max) {
+                return false;
+            }
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[b.length()] <= max;
+    }
+
+    // --- Records ---
+
+    private record Speculation(String key, String normalized, CompletableFuture<ArchitectResponse> result,
+            Cancellable call, long startedAt) {
+
+        boolean isStale() {
+            return System.currentTimeMillis() - startedAt > RESULT_TTL_MILLIS;
+        }
+    }
+
+    // Token bucket refilled continuously at perMinute tokens per minute
+    private static final class Budget {
+        private final int capacity;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        Budget(int perMinute) {
+            this.capacity = Math.max(1, perMinute);
+            this.tokens = capacity;
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * capacity / 60e9);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
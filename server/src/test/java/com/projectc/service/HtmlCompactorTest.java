@@ -0,0 +1,101 @@
+package com.projectc.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class HtmlCompactorTest {
+
+    private final HtmlCompactor compactor = new HtmlCompactor();
+
+    @Test
+    void collapsesWhitespaceButKeepsLineBreaks() {
+        String html = "<div>\n    <p>Hello   world</p>\n\n    <span>\tA</span>\n</div>\n";
+
+        assertEquals("<div>\n<p>Hello world</p>\n<span> A</span>\n</div>", compactor.compact(html));
+    }
+
+    @Test
+    void removesCommentsButKeepsConditionalComments() {
+        String html = "<div><!-- layout: two columns --><p>A</p><!--[if IE]><p>B</p><![endif]--></div>";
+
+        assertEquals("<div><p>A</p><!--[if IE]><p>B</p><![endif]--></div>", compactor.compact(html));
+    }
+
+    @Test
+    void leavesPreformattedTextAlone() {
+        String html = "<div>\n  <pre>  a\n    b</pre>\n</div>";
+
+        assertEquals("<div>\n<pre>  a\n    b</pre>\n</div>", compactor.compact(html));
+    }
+
+    @Test
+    void leavesScriptsWithTemplateLiteralsAlone() {
+        String script = "<script>\n    el.innerHTML = `\n      <b>${v}</b>`;\n</script>";
+
+        assertEquals(script, compactor.compact(script));
+    }
+
+    @Test
+    void stripsScriptIndentation() {
+        String html = "<script>\n    const x = 1;\n\n    go(x);\n</script>";
+
+        assertEquals("<script>\nconst x = 1;\ngo(x);\n</script>", compactor.compact(html));
+    }
+
+    @Test
+    void shortensIdsTogetherWithTheirReferences() {
+        String html = "<label for=\"revenueInput\">Revenue</label><input id=\"revenueInput\">"
+                + "<canvas id=\"revenueChart\"></canvas>"
+                + "<script>new Chart(document.getElementById('revenueChart'), cfg);</script>";
+
+        assertEquals("<label for=\"i0\">Revenue</label><input id=\"i0\">"
+                + "<canvas id=\"i1\"></canvas>"
+                + "<script>new Chart(document.getElementById('i1'), cfg);</script>", compactor.compact(html));
+    }
+
+    @Test
+    void keepsIdsWhenScriptsBuildThemAtRuntime() {
+        String concatenated = "<div id=\"bar-1\"></div><div id=\"bar-2\"></div>"
+                + "<script>for (let i = 1; i <= 2; i++) document.getElementById('bar-' + i).style.width = '50%';"
+                + "</script>";
+        String template = "<div id=\"kpi1\"></div>"
+                + "<script>[1].forEach(i => { document.querySelector(`#kpi${i}`).textContent = i; });</script>";
+        String variable = "<canvas id=\"salesChart\"></canvas>"
+                + "<script>const target = 'salesChart'; new Chart(document.getElementById(target), cfg);</script>";
+        String prefix = "<div id=\"row-a\"></div><style>[id^=\"row-\"] { color: red; }</style>";
+
+        assertEquals(concatenated, compactor.compact(concatenated));
+        assertEquals(template, compactor.compact(template));
+        assertEquals(variable, compactor.compact(variable));
+        assertEquals(prefix, compactor.compact(prefix));
+    }
+
+    @Test
+    void keepsIdsThatAlsoAppearAsText() {
+        String html = "<div id=\"growth\"><p>growth in Q3</p></div>";
+
+        assertEquals(html, compactor.compact(html));
+    }
+
+    @Test
+    void leavesInlineStylesUntouched() {
+        // Bars animate from 0 via el.style.width, which a class rule with
+        // !important would override
+        String html = "<html><head></head><body>"
+                + "<div class=\"bar\" style=\"width: 0%; transition: width 1s ease-out\"></div>"
+                + "<div class=\"bar\" style=\"width: 0%; transition: width 1s ease-out\"></div>"
+                + "<script>document.querySelectorAll('.bar').forEach(b => b.style.width = '80%');</script>"
+                + "</body></html>";
+
+        assertEquals(html, compactor.compact(html));
+    }
+
+    @Test
+    void prettyPrintsNestedMarkup() {
+        String html = "<div><p>A</p><ul><li>x</li><li>y</li></ul><br></div>";
+
+        assertEquals("<div>\n  <p>A</p>\n  <ul>\n    <li>x</li>\n    <li>y</li>\n  </ul>\n  <br>\n</div>\n",
+                compactor.prettyPrint(html));
+    }
+}
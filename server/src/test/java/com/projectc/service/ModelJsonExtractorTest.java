@@ -0,0 +1,169 @@
+package com.projectc.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+class ModelJsonExtractorTest {
+
+    private final ModelJsonExtractor extractor = new ModelJsonExtractor();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void leavesValidJsonUnchanged() {
+        String json = "{\"a\": 1, \"b\": [true, null, {\"c\": \"x \\\"y\\\" }\"}], \"d\": \"\"}";
+
+        ModelJsonExtractor.Result result = extractor.extract(json);
+
+        assertEquals(json, result.json());
+        assertTrue(result.found());
+        assertFalse(result.repaired());
+        assertFalse(result.truncated());
+        assertFalse(result.ambiguous());
+    }
+
+    @Test
+    void skipsProseAndCodeFences() {
+        ModelJsonExtractor.Result result = extractor.extract(
+                "Here is the plan {roughly}:\n```json\n{\"layout\": \"grid\"}\n```\nLet me know if it \"works\".");
+
+        assertEquals("{\"layout\": \"grid\"}", result.json());
+        assertFalse(result.repaired());
+        assertFalse(result.ambiguous());
+    }
+
+    @Test
+    void dropsTrailingCommas() {
+        ModelJsonExtractor.Result result = extractor.extract("{\"a\": [1, 2,], \"b\": {\"c\": 3,},}");
+
+        assertEquals("{\"a\": [1, 2], \"b\": {\"c\": 3}}", result.json());
+        assertTrue(result.repaired());
+        assertFalse(result.truncated());
+    }
+
+    @Test
+    void escapesRawControlCharactersInStrings() throws Exception {
+        ModelJsonExtractor.Result result = extractor.extract("{\"htmlCode\": \"<div>\n\t<p>A</p>\r\n</div>\"}");
+
+        assertTrue(result.repaired());
+        assertEquals("<div>\n\t<p>A</p>\r\n</div>", parse(result).get("htmlCode").asText());
+    }
+
+    @Test
+    void escapesStrayQuotesInValues() throws Exception {
+        ModelJsonExtractor.Result result = extractor.extract(
+                "{\"htmlCode\": \"<div class=\"card\" data-x=\"1\">A</div>\", \"layout\": \"grid\"}");
+
+        JsonNode node = parse(result);
+        assertTrue(result.repaired());
+        assertFalse(result.ambiguous());
+        assertEquals("<div class=\"card\" data-x=\"1\">A</div>", node.get("htmlCode").asText());
+        assertEquals("grid", node.get("layout").asText());
+    }
+
+    @Test
+    void recoversObjectLiteralInScript() throws Exception {
+        String script = "<script>const o = {\"k\": \"v\"}; draw(o);</script>";
+        ModelJsonExtractor.Result result = extractor.extract(
+                "{\"htmlCode\": \"" + script + "\", \"layout\": \"chart\"}");
+
+        JsonNode node = parse(result);
+        assertFalse(result.ambiguous());
+        assertEquals(script, node.get("htmlCode").asText());
+        assertEquals("chart", node.get("layout").asText());
+    }
+
+    @Test
+    void recoversChartLabelsInScript() throws Exception {
+        String script = "<script>new Chart(ctx, { data: { labels: [\"Q1\", \"Q2\", \"Q3\"] } });</script>";
+        String reply = "{\"htmlCode\": \"" + script + "\", \"layout_strategy\": \"x\"}";
+
+        for (String text : new String[] { reply, "```json\n" + reply + "\n```" }) {
+            ModelJsonExtractor.Result result = extractor.extract(text);
+
+            JsonNode node = parse(result);
+            assertFalse(result.truncated());
+            assertFalse(result.ambiguous());
+            assertEquals(script, node.get("htmlCode").asText());
+            assertEquals("x", node.get("layout_strategy").asText());
+            assertEquals(2, node.size());
+        }
+    }
+
+    @Test
+    void flagsRepairedObjectFollowedByMoreText() {
+        ModelJsonExtractor.Result result = extractor.extract(
+                "{\"htmlCode\": \"<p class=\"a\">x</p>\"} I used \"quotes\" here.");
+
+        assertTrue(result.repaired());
+        assertTrue(result.ambiguous());
+        assertFalse(result.truncated());
+    }
+
+    @Test
+    void trustsCleanObjectFollowedByProse() {
+        ModelJsonExtractor.Result result = extractor.extract("{\"a\": \"x\"} Hope this \"helps\".");
+
+        assertEquals("{\"a\": \"x\"}", result.json());
+        assertFalse(result.ambiguous());
+    }
+
+    @Test
+    void closesContainersLeftOpenBeforeMismatchedCloser() {
+        ModelJsonExtractor.Result result = extractor.extract("{\"a\": [1, 2}");
+
+        assertEquals("{\"a\": [1, 2]}", result.json());
+        assertTrue(result.repaired());
+        assertFalse(result.truncated());
+        assertFalse(result.ambiguous());
+    }
+
+    @Test
+    void flagsStrayQuoteRepairThatClosedTheObjectEarly() {
+        ModelJsonExtractor.Result result = extractor.extract(
+                "{\"htmlCode\": \"<script>const o = {\"k\": \"v\", \"m\": 1}; draw(o);</script>\"}");
+
+        assertTrue(result.ambiguous());
+        assertFalse(result.truncated());
+    }
+
+    @Test
+    void closesTruncatedString() throws Exception {
+        ModelJsonExtractor.Result result = extractor.extract("{\"layout\": \"grid\", \"htmlCode\": \"<div>cut");
+
+        assertTrue(result.truncated());
+        assertEquals("<div>cut", parse(result).get("htmlCode").asText());
+    }
+
+    @Test
+    void closesTruncatedContainers() throws Exception {
+        ModelJsonExtractor.Result result = extractor.extract("{\"a\": [1, 2, {\"b\": ");
+
+        assertTrue(result.truncated());
+        assertEquals("{\"a\": [1, 2, {\"b\": null}]}", result.json());
+        parse(result);
+    }
+
+    @Test
+    void treatsClosingFenceBeforeObjectEndAsTruncation() throws Exception {
+        ModelJsonExtractor.Result result = extractor.extract("```json\n{\"a\": 1, \"b\": [2\n```");
+
+        assertTrue(result.truncated());
+        assertEquals(2, parse(result).get("b").get(0).asInt());
+    }
+
+    @Test
+    void reportsMissingObject() {
+        ModelJsonExtractor.Result result = extractor.extract("Sorry, I cannot help with that.");
+
+        assertFalse(result.found());
+    }
+
+    private JsonNode parse(ModelJsonExtractor.Result result) throws Exception {
+        return mapper.readTree(result.json());
+    }
+}
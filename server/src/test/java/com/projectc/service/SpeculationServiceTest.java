@@ -0,0 +1,51 @@
+package com.projectc.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SpeculationServiceTest {
+
+    @Test
+    void matchesIdenticalInput() {
+        assertTrue(matches("Revenue growth by region 2024", "Revenue growth by region 2024"));
+    }
+
+    @Test
+    void ignoresCaseWhitespaceAndPunctuation() {
+        assertTrue(matches("Revenue growth by region, 2024", "revenue  growth by region 2024."));
+        assertTrue(matches("Revenue-growth by region", "Revenue growth by region"));
+    }
+
+    @Test
+    void acceptsOneEditTypoInLongWord() {
+        assertTrue(matches("Quarterly revnue by region", "Quarterly revenue by region"));
+    }
+
+    @Test
+    void rejectsChangedNumbers() {
+        assertFalse(matches("Revenue growth by region 2024", "Revenue growth by region 2025"));
+        assertFalse(matches("Revenue growth by region Q3", "Revenue growth by region Q4"));
+        assertFalse(matches("Costs split 10 20 by unit", "Costs split 1020 by unit"));
+    }
+
+    @Test
+    void rejectsChangedSignsAndDecimals() {
+        assertFalse(matches("Market growth of -5% in Europe", "Market growth of 5% in Europe"));
+        assertFalse(matches("Margin at 2.5 points this year", "Margin at 25 points this year"));
+        assertTrue(matches("Headcount of COVID-19 era teams", "Headcount of COVID 19 era teams"));
+    }
+
+    @Test
+    void rejectsChangedWords() {
+        assertFalse(matches("Revenue increase by region", "Revenue decrease by region"));
+        assertFalse(matches("Revenue in Europe by quarter", "Revenue in Asia by quarter"));
+        assertFalse(matches("Market share of top players", "Market share of top players in"));
+    }
+
+    private static boolean matches(String speculated, String submitted) {
+        return SpeculationService.matches(SpeculationService.normalize(speculated),
+                SpeculationService.normalize(submitted));
+    }
+}